@@ -54,11 +54,66 @@ dependencyManagement {
     }
 }
 
+val cdsArchive = layout.buildDirectory.file("cds/application.jsa")
+val fastStartupClasspath = files(tasks.jar, configurations.runtimeClasspath)
+
 tasks.test {
     useJUnitPlatform()
+    exclude("com/example/ApplicationStartupTest.class")
+    providers.gradleProperty("cucumberParallel").orNull?.let {
+        systemProperty("cucumber.execution.parallel.enabled", it)
+    }
     finalizedBy(tasks.jacocoTestReport)
 }
 
+tasks.register<Test>("startupTest") {
+    group = "verification"
+    description = "Compares the time to the first request served with and without the fast-startup profile."
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform()
+    val startupTestOutput = layout.buildDirectory.dir("startup-test")
+    inputs.files(fastStartupClasspath)
+    outputs.dir(startupTestOutput)
+    jvmArgumentProviders.add(CommandLineArgumentProvider {
+        listOf(
+            "-Dstartup.classpath=${fastStartupClasspath.asPath}",
+            "-Dstartup.outputDirectory=${startupTestOutput.get().asFile}"
+        )
+    })
+    filter {
+        includeTestsMatching("com.example.ApplicationStartupTest")
+    }
+    extensions.configure<JacocoTaskExtension> {
+        isEnabled = false
+    }
+    shouldRunAfter(tasks.test)
+}
+
 jacoco {
     toolVersion = "0.8.11"
 }
+
+tasks.register<JavaExec>("cdsTrainingRun") {
+    group = "application"
+    description = "Starts the application with the fast-startup profile and records a class data sharing archive."
+    classpath = fastStartupClasspath
+    mainClass.set("com.example.Application")
+    // Beans are created eagerly so the classes the first request needs are loaded before the archive is written
+    args("--spring.profiles.active=fast-startup", "--spring.main.lazy-initialization=false")
+    jvmArgs("-XX:ArchiveClassesAtExit=${cdsArchive.get().asFile}", "-Dspring.context.exit=onRefresh")
+    outputs.file(cdsArchive)
+    doFirst {
+        cdsArchive.get().asFile.parentFile.mkdirs()
+    }
+}
+
+tasks.register<JavaExec>("bootRunFastStartup") {
+    group = "application"
+    description = "Runs the application with the fast-startup profile and the class data sharing archive."
+    classpath = fastStartupClasspath
+    mainClass.set("com.example.Application")
+    args("--spring.profiles.active=fast-startup")
+    jvmArgs("-XX:SharedArchiveFile=${cdsArchive.get().asFile}")
+    mustRunAfter("cdsTrainingRun")
+}
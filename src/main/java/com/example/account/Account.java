@@ -7,6 +7,7 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -33,4 +34,8 @@ public class Account {
 
     @Column(name = "ACCOUNT_BALANCE")
     private BigDecimal balance;
+
+    @Version
+    @Column(name = "ACCOUNT_VERSION")
+    private Long version;
 }
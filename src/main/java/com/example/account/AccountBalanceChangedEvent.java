@@ -0,0 +1,7 @@
+package com.example.account;
+
+import java.math.BigDecimal;
+
+// Previous balance is null for accounts just created, listeners read the version once the change commits
+public record AccountBalanceChangedEvent(Account account, BigDecimal previousBalance) {
+}
@@ -0,0 +1,16 @@
+package com.example.account.api;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public final class AccountBalanceResponse {
+
+    @NotNull
+    private Long id;
+
+    @NotNull
+    private String balance;
+}
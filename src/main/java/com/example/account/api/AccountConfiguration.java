@@ -9,11 +9,14 @@ import java.text.DecimalFormatSymbols;
 @Configuration
 public class AccountConfiguration {
 
+    // DecimalFormat keeps state while formatting and parsing, so every thread gets its own instance
     @Bean("balanceFormat")
-    DecimalFormat decimalFormat() {
-        final var decimalFormat = new DecimalFormat("#,##0.00", DecimalFormatSymbols.getInstance());
-        decimalFormat.setParseBigDecimal(true);
+    ThreadLocal<DecimalFormat> decimalFormat() {
+        return ThreadLocal.withInitial(() -> {
+            final var decimalFormat = new DecimalFormat("#,##0.00", DecimalFormatSymbols.getInstance());
+            decimalFormat.setParseBigDecimal(true);
 
-        return decimalFormat;
+            return decimalFormat;
+        });
     }
 }
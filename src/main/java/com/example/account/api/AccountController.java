@@ -1,13 +1,16 @@
 package com.example.account.api;
 
 import com.example.account.Account;
+import com.example.account.AccountBalanceChangedEvent;
 import com.example.account.AccountNotFoundException;
 import com.example.account.AccountRepository;
 import com.example.account.AccountTransferException;
+import com.example.account.statistics.AccountStatistics;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
@@ -18,6 +21,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.util.UriComponentsBuilder;
 
@@ -33,11 +37,17 @@ public class AccountController {
     private static final Logger LOGGER = LoggerFactory.getLogger(AccountController.class);
 
     private final AccountRepository accountRepository;
-    private final DecimalFormat balanceFormat;
+    private final AccountStatistics accountStatistics;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ThreadLocal<DecimalFormat> balanceFormat;
 
     public AccountController(AccountRepository accountRepository,
-                             @Qualifier("balanceFormat") DecimalFormat decimalFormat) {
+                             AccountStatistics accountStatistics,
+                             ApplicationEventPublisher eventPublisher,
+                             @Qualifier("balanceFormat") ThreadLocal<DecimalFormat> decimalFormat) {
         this.accountRepository = accountRepository;
+        this.accountStatistics = accountStatistics;
+        this.eventPublisher = eventPublisher;
         this.balanceFormat = decimalFormat;
     }
 
@@ -51,6 +61,7 @@ public class AccountController {
 
         final var accountCreated = accountRepository.save(account);
         LOGGER.info("Account created (account={})", accountCreated);
+        eventPublisher.publishEvent(new AccountBalanceChangedEvent(accountCreated, null));
 
         final var accountUri = uriComponentsBuilder.path("/{accountId}")
                 .build(accountCreated.getId());
@@ -60,6 +71,36 @@ public class AccountController {
                 .build();
     }
 
+    @GetMapping("/stats")
+    public ResponseEntity<AccountStatsResponse> stats(@RequestParam(defaultValue = "10") int top) {
+        if (!accountStatistics.isLoaded()) {
+            // Figures built from an empty base would look real, so clients retry once the statistics are loaded
+            LOGGER.info("Account statistics requested before they were loaded");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .build();
+        }
+
+        final var snapshot = accountStatistics.snapshot(Math.clamp(top, 0, AccountStatistics.MAX_TOP_BALANCES));
+
+        final var topBalances = snapshot.topBalances().stream()
+                .map(accountBalance -> {
+                    final var accountBalanceResponse = new AccountBalanceResponse();
+                    accountBalanceResponse.setId(accountBalance.accountId());
+                    accountBalanceResponse.setBalance(balanceFormat.get().format(accountBalance.balance()));
+                    return accountBalanceResponse;
+                })
+                .toList();
+
+        final var accountStatsResponse = new AccountStatsResponse();
+        accountStatsResponse.setTotalBalance(balanceFormat.get().format(snapshot.totalBalance()));
+        accountStatsResponse.setAccountCount(snapshot.accountCount());
+        accountStatsResponse.setTopBalances(topBalances);
+        LOGGER.info("Account statistics served from memory (accountCount={})", snapshot.accountCount());
+
+        return ResponseEntity.status(HttpStatus.OK)
+                .body(accountStatsResponse);
+    }
+
     @GetMapping("/{accountId}")
     @Transactional(readOnly = true)
     public ResponseEntity<AccountResponse> findOne(@PathVariable Long accountId) {
@@ -69,7 +110,7 @@ public class AccountController {
         final var accountResponse = new AccountResponse();
         accountResponse.setId(account.getId());
         accountResponse.setName(account.getName());
-        accountResponse.setBalance(balanceFormat.format(account.getBalance()));
+        accountResponse.setBalance(balanceFormat.get().format(account.getBalance()));
         LOGGER.info("Found account by ID (account={})", accountResponse);
 
         return ResponseEntity.status(HttpStatus.OK)
@@ -81,15 +122,16 @@ public class AccountController {
     public ResponseEntity<DepositResponse> deposit(@PathVariable Long accountId,
                                                    @Valid @RequestBody DepositRequest depositRequest) {
         LOGGER.info("Trying to deposit money (accountId={}, request={})", accountId, depositRequest);
-        final var account = accountRepository.findById(accountId)
-                .orElseThrow(() -> new AccountNotFoundException(accountId));
+        final var account = findLockedAccount(accountId);
+        final var previousBalance = account.getBalance();
 
         account.setBalance(account.getBalance().add(depositRequest.getAmount()));
         accountRepository.save(account);
         LOGGER.info("Money deposited into account (account={})", account);
+        eventPublisher.publishEvent(new AccountBalanceChangedEvent(account, previousBalance));
 
         final var depositResponse = new DepositResponse();
-        depositResponse.setBalance(balanceFormat.format(account.getBalance()));
+        depositResponse.setBalance(balanceFormat.get().format(account.getBalance()));
         LOGGER.info("Money deposit finished successfully (response={})", depositResponse);
 
         return ResponseEntity.status(HttpStatus.OK)
@@ -101,30 +143,47 @@ public class AccountController {
     public ResponseEntity<TransferResponse> transfer(@PathVariable Long accountId,
                                                      @Valid @RequestBody TransferRequest transferRequest) {
         LOGGER.info("Trying to execute money transfer (accountId={}, request={})", accountId, transferRequest);
-        final var sourceAccount = accountRepository.findById(accountId)
-                .orElseThrow(() -> new AccountNotFoundException(accountId));
-
-        final var targetAccount = accountRepository.findById(transferRequest.getTargetAccountId())
-                .orElseThrow(() -> new AccountNotFoundException(transferRequest.getTargetAccountId()));
+        final var targetAccountId = transferRequest.getTargetAccountId();
+
+        // Locking both accounts in ID order, like the posting job does, keeps them from deadlocking each other
+        final Account sourceAccount;
+        final Account targetAccount;
+        if (accountId <= targetAccountId) {
+            sourceAccount = findLockedAccount(accountId);
+            targetAccount = findLockedAccount(targetAccountId);
+        } else {
+            targetAccount = findLockedAccount(targetAccountId);
+            sourceAccount = findLockedAccount(accountId);
+        }
 
         if (sourceAccount.getBalance().compareTo(transferRequest.getAmount()) < 0) {
             throw new AccountTransferException(sourceAccount.getId(), targetAccount.getId());
         }
 
+        final var sourcePreviousBalance = sourceAccount.getBalance();
+        final var targetPreviousBalance = targetAccount.getBalance();
         sourceAccount.setBalance(sourceAccount.getBalance().min(transferRequest.getAmount()));
         targetAccount.setBalance(targetAccount.getBalance().add(transferRequest.getAmount()));
         accountRepository.saveAll(Set.of(sourceAccount, targetAccount));
         LOGGER.info("Money transferred between accounts (source={}, target={})", sourceAccount, targetAccount);
+        eventPublisher.publishEvent(new AccountBalanceChangedEvent(sourceAccount, sourcePreviousBalance));
+        eventPublisher.publishEvent(new AccountBalanceChangedEvent(targetAccount, targetPreviousBalance));
 
         final var transferResponse = new TransferResponse();
-        transferResponse.setSourceAccountBalance(balanceFormat.format(sourceAccount.getBalance()));
-        transferResponse.setTargetAccountBalance(balanceFormat.format(targetAccount.getBalance()));
+        transferResponse.setSourceAccountBalance(balanceFormat.get().format(sourceAccount.getBalance()));
+        transferResponse.setTargetAccountBalance(balanceFormat.get().format(targetAccount.getBalance()));
         LOGGER.info("Money transaction finished successfully (response={})", transferResponse);
 
         return ResponseEntity.status(HttpStatus.OK)
                 .body(transferResponse);
     }
 
+    private Account findLockedAccount(Long accountId) {
+        // Balances are updated by reading them first, so concurrent deposits, transfers and postings must wait
+        return accountRepository.findLockedById(accountId)
+                .orElseThrow(() -> new AccountNotFoundException(accountId));
+    }
+
     @ExceptionHandler(AccountNotFoundException.class)
     private ResponseEntity<Void> handleAccountNotFoundException(AccountNotFoundException exception) {
         LOGGER.info("Account {} not found by ID", exception.getAccountId(), exception);
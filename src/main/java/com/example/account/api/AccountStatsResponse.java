@@ -0,0 +1,21 @@
+package com.example.account.api;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public final class AccountStatsResponse {
+
+    @NotNull
+    private String totalBalance;
+
+    @NotNull
+    private Long accountCount;
+
+    @NotNull
+    private List<AccountBalanceResponse> topBalances;
+}
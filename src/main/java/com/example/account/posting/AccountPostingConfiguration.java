@@ -0,0 +1,11 @@
+package com.example.account.posting;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties(AccountPostingProperties.class)
+public class AccountPostingConfiguration {
+}
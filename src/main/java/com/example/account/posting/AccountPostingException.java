@@ -0,0 +1,20 @@
+package com.example.account.posting;
+
+import java.io.Serial;
+import java.time.LocalDate;
+
+public final class AccountPostingException extends RuntimeException {
+
+    @Serial
+    private static final long serialVersionUID = 4127769254032183553L;
+    private final LocalDate postingDate;
+
+    public AccountPostingException(LocalDate postingDate, Throwable cause) {
+        super("Account posting did not complete", cause);
+        this.postingDate = postingDate;
+    }
+
+    public LocalDate getPostingDate() {
+        return postingDate;
+    }
+}
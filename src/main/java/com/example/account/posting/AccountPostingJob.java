@@ -0,0 +1,244 @@
+package com.example.account.posting;
+
+import com.example.account.Account;
+import com.example.account.AccountBalanceChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Posts interest and fees to every account once per posting date, in partitions processed in parallel.
+ */
+@Component
+// Initializing it lazily would keep the nightly run from being scheduled until something else used the job
+@Lazy(false)
+public class AccountPostingJob {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccountPostingJob.class);
+
+    private static final String FIND_ACCOUNT_ID_RANGE = """
+            SELECT MIN(ACCOUNT_ID) AS LOWER_ID, MAX(ACCOUNT_ID) AS UPPER_ID
+            FROM ACCOUNT
+            """;
+
+    private static final String INSERT_PARTITION = """
+            INSERT INTO ACCOUNT_POSTING_CHECKPOINT (POSTING_DATE, PARTITION_INDEX, PARTITION_LOWER_ID,
+                                                    PARTITION_UPPER_ID, LAST_POSTED_ACCOUNT_ID, COMPLETED)
+            VALUES (?, ?, ?, ?, ?, FALSE)
+            ON CONFLICT DO NOTHING
+            """;
+
+    private static final String FIND_PARTITIONS = """
+            SELECT PARTITION_INDEX, PARTITION_UPPER_ID, LAST_POSTED_ACCOUNT_ID, COMPLETED
+            FROM ACCOUNT_POSTING_CHECKPOINT
+            WHERE POSTING_DATE = ?
+            ORDER BY PARTITION_INDEX
+            """;
+
+    private static final String LOCK_CHUNK = """
+            SELECT ACCOUNT_ID
+            FROM ACCOUNT
+            WHERE ACCOUNT_ID > ? AND ACCOUNT_ID <= ?
+            ORDER BY ACCOUNT_ID
+            LIMIT ?
+            FOR UPDATE
+            """;
+
+    private static final String MOVE_CHECKPOINT = """
+            UPDATE ACCOUNT_POSTING_CHECKPOINT
+            SET LAST_POSTED_ACCOUNT_ID = ?, COMPLETED = ?
+            WHERE POSTING_DATE = ? AND PARTITION_INDEX = ? AND LAST_POSTED_ACCOUNT_ID = ? AND NOT COMPLETED
+            """;
+
+    private static final String FIND_CAPPED_ACCOUNTS = """
+            SELECT ACCOUNT_ID
+            FROM ACCOUNT
+            WHERE ACCOUNT_ID > ? AND ACCOUNT_ID <= ? AND ACCOUNT_BALANCE + ROUND(ACCOUNT_BALANCE * ?, 2) > ?
+            ORDER BY ACCOUNT_ID
+            """;
+
+    private static final String POST_INTEREST_AND_FEE = """
+            WITH CHUNK AS (
+                SELECT ACCOUNT_ID AS CHUNK_ACCOUNT_ID, ACCOUNT_BALANCE AS PREVIOUS_BALANCE
+                FROM ACCOUNT
+                WHERE ACCOUNT_ID > ? AND ACCOUNT_ID <= ?
+            )
+            UPDATE ACCOUNT
+            SET ACCOUNT_BALANCE = LEAST(ACCOUNT_BALANCE + ROUND(ACCOUNT_BALANCE * ?, 2), ?) - LEAST(ACCOUNT_BALANCE, ?),
+                ACCOUNT_VERSION = ACCOUNT_VERSION + 1
+            FROM CHUNK
+            WHERE ACCOUNT_ID = CHUNK_ACCOUNT_ID
+            RETURNING ACCOUNT_ID, ACCOUNT_VERSION, ACCOUNT_BALANCE, PREVIOUS_BALANCE
+            """;
+
+    // Largest balance ACCOUNT_BALANCE DECIMAL(7, 2) can hold, interest above it would fail the whole chunk
+    private static final BigDecimal MAX_BALANCE = new BigDecimal("99999.99");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AccountPostingProperties properties;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public AccountPostingJob(JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             AccountPostingProperties properties,
+                             ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Scheduled(cron = "${account.posting.cron:0 0 2 * * *}")
+    public void runNightly() {
+        run(LocalDate.now());
+    }
+
+    public void run(LocalDate postingDate) {
+        LOGGER.info("Trying to post interest and fees (postingDate={}, properties={})", postingDate, properties);
+        final var pendingPartitions = findOrCreatePartitions(postingDate).stream()
+                .filter(partition -> !partition.completed())
+                .toList();
+
+        try (var executor = Executors.newFixedThreadPool(properties.threads())) {
+            final var futures = new ArrayList<Future<?>>();
+            for (var partition : pendingPartitions) {
+                futures.add(executor.submit(() -> post(postingDate, partition)));
+            }
+
+            for (var future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException exception) {
+            throw new AccountPostingException(postingDate, exception.getCause());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new AccountPostingException(postingDate, exception);
+        }
+
+        LOGGER.info("Interest and fees posted (postingDate={}, partitions={})", postingDate, pendingPartitions.size());
+    }
+
+    private List<Partition> findOrCreatePartitions(LocalDate postingDate) {
+        final var partitions = findPartitions(postingDate);
+        if (!partitions.isEmpty()) {
+            LOGGER.info("Resuming account posting from checkpoints (postingDate={}, partitions={})",
+                    postingDate, partitions);
+            return partitions;
+        }
+
+        final var accountIdRange = jdbcTemplate.queryForMap(FIND_ACCOUNT_ID_RANGE);
+        if (accountIdRange.get("LOWER_ID") == null) {
+            return List.of();
+        }
+
+        // Lower bounds are exclusive and upper bounds inclusive, so the range starts right before the first account
+        final var lowerId = ((Number) accountIdRange.get("LOWER_ID")).longValue() - 1;
+        final var upperId = ((Number) accountIdRange.get("UPPER_ID")).longValue();
+        final var partitionSize = Math.ceilDiv(upperId - lowerId, properties.partitions());
+
+        final var partitionBounds = new ArrayList<Object[]>();
+        for (var index = 0; index < properties.partitions(); index++) {
+            final var partitionLowerId = lowerId + index * partitionSize;
+            final var partitionUpperId = Math.min(partitionLowerId + partitionSize, upperId);
+            if (partitionLowerId < partitionUpperId) {
+                partitionBounds.add(new Object[]{
+                        postingDate, index, partitionLowerId, partitionUpperId, partitionLowerId
+                });
+            }
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_PARTITION, partitionBounds);
+        return findPartitions(postingDate);
+    }
+
+    private List<Partition> findPartitions(LocalDate postingDate) {
+        return jdbcTemplate.query(FIND_PARTITIONS, (resultSet, rowNumber) -> new Partition(
+                resultSet.getInt("PARTITION_INDEX"),
+                resultSet.getLong("PARTITION_UPPER_ID"),
+                resultSet.getLong("LAST_POSTED_ACCOUNT_ID"),
+                resultSet.getBoolean("COMPLETED")
+        ), postingDate);
+    }
+
+    private void post(LocalDate postingDate, Partition partition) {
+        // Every chunk is a short transaction, so a failed run resumes from the last chunk committed
+        var lastPostedAccountId = partition.lastPostedAccountId();
+        while (true) {
+            final var fromAccountId = lastPostedAccountId;
+            final var toAccountId = transactionTemplate.execute(status ->
+                    postChunk(postingDate, partition, fromAccountId));
+
+            if (toAccountId == null) {
+                LOGGER.info("Account posting partition completed (postingDate={}, partition={})",
+                        postingDate, partition.index());
+                return;
+            }
+
+            lastPostedAccountId = toAccountId;
+        }
+    }
+
+    private Long postChunk(LocalDate postingDate, Partition partition, long fromAccountId) {
+        // Locking the rows of the chunk in ID order makes deposits and transfers wait for it without deadlocking
+        final var chunkAccountIds = jdbcTemplate.queryForList(
+                LOCK_CHUNK, Long.class, fromAccountId, partition.upperAccountId(), properties.chunkSize());
+        final var toAccountId = chunkAccountIds.isEmpty() ? null : chunkAccountIds.getLast();
+
+        // The checkpoint only moves from where this chunk started, so a concurrent run of the same partition that
+        // already posted it leaves nothing to update
+        final var checkpointMoved = jdbcTemplate.update(MOVE_CHECKPOINT,
+                toAccountId == null ? fromAccountId : toAccountId,
+                toAccountId == null,
+                postingDate,
+                partition.index(),
+                fromAccountId);
+
+        if (checkpointMoved == 0) {
+            throw new IllegalStateException(
+                    "Checkpoint of partition " + partition.index() + " was moved by another account posting run");
+        }
+
+        if (toAccountId != null) {
+            final var cappedAccountIds = jdbcTemplate.queryForList(FIND_CAPPED_ACCOUNTS, Long.class,
+                    fromAccountId, toAccountId, properties.interestRate(), MAX_BALANCE);
+            if (!cappedAccountIds.isEmpty()) {
+                LOGGER.warn("Interest capped at the maximum balance (postingDate={}, maxBalance={}, accountIds={})",
+                        postingDate, MAX_BALANCE, cappedAccountIds);
+            }
+
+            // Every balance posted reaches the statistics once the chunk commits, so they stay right during the run
+            final var accountsPosted = jdbcTemplate.query(POST_INTEREST_AND_FEE, (resultSet, rowNumber) -> {
+                final var account = new Account();
+                account.setId(resultSet.getLong("ACCOUNT_ID"));
+                account.setVersion(resultSet.getLong("ACCOUNT_VERSION"));
+                account.setBalance(resultSet.getBigDecimal("ACCOUNT_BALANCE"));
+
+                return new AccountBalanceChangedEvent(account, resultSet.getBigDecimal("PREVIOUS_BALANCE"));
+            }, fromAccountId, toAccountId, properties.interestRate(), MAX_BALANCE, properties.fee());
+            accountsPosted.forEach(eventPublisher::publishEvent);
+
+            LOGGER.debug(
+                    "Account posting chunk committed (postingDate={}, partition={}, accounts={}, lastAccountId={})",
+                    postingDate, partition.index(), accountsPosted.size(), toAccountId);
+        }
+
+        return toAccountId;
+    }
+
+    private record Partition(int index, long upperAccountId, long lastPostedAccountId, boolean completed) {
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.account.posting;
+
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+import java.math.BigDecimal;
+
+@ConfigurationProperties("account.posting")
+@Validated
+public record AccountPostingProperties(
+        @DefaultValue("0.0001") @PositiveOrZero BigDecimal interestRate,
+        @DefaultValue("0.00") @PositiveOrZero BigDecimal fee,
+        @DefaultValue("8") @Positive int partitions,
+        @DefaultValue("4") @Positive int threads,
+        @DefaultValue("500") @Positive int chunkSize
+) {
+}
@@ -0,0 +1,6 @@
+package com.example.account.statistics;
+
+import java.math.BigDecimal;
+
+public record AccountBalance(Long accountId, BigDecimal balance) {
+}
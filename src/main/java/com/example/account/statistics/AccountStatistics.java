@@ -0,0 +1,412 @@
+package com.example.account.statistics;
+
+import com.example.account.AccountBalanceChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the total balance, the number of accounts and the highest balances in memory.
+ */
+@Component
+// Never initialized lazily, since it has to see every change and run the reconciliation
+@Lazy(false)
+public class AccountStatistics implements SmartInitializingSingleton {
+
+    public static final int MAX_TOP_BALANCES = 100;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccountStatistics.class);
+
+    // Twice the balances ever served, so an account leaving the top rarely requires reading it again
+    private static final int TOP_BALANCES_CAPACITY = 2 * MAX_TOP_BALANCES;
+
+    // Enough accounts outside the top to remember their versions until changes that arrive late have been applied
+    private static final int OUTSIDE_TOP_VERSIONS_CAPACITY = 10_000;
+
+    private static final String FIND_TOTALS = """
+            SELECT COUNT(*) AS ACCOUNT_COUNT, COALESCE(SUM(ACCOUNT_BALANCE), 0) AS TOTAL_BALANCE
+            FROM ACCOUNT
+            """;
+
+    private static final String FIND_TOP_BALANCES = """
+            SELECT ACCOUNT_ID, ACCOUNT_VERSION, ACCOUNT_BALANCE
+            FROM ACCOUNT
+            ORDER BY ACCOUNT_BALANCE DESC, ACCOUNT_ID
+            LIMIT ?
+            """;
+
+    private static final String FIND_VERSIONS = """
+            SELECT ACCOUNT_ID, ACCOUNT_VERSION
+            FROM ACCOUNT
+            WHERE ACCOUNT_ID IN (%s)
+            """;
+
+    private static final Comparator<TopBalance> HIGHEST_BALANCE_FIRST = Comparator
+            .comparing(TopBalance::balance, Comparator.reverseOrder())
+            .thenComparing(TopBalance::accountId);
+
+    private static final RowMapper<Totals> TOTALS_ROW_MAPPER = (resultSet, rowNumber) -> new Totals(
+            resultSet.getLong("ACCOUNT_COUNT"),
+            resultSet.getBigDecimal("TOTAL_BALANCE")
+    );
+
+    private static final RowMapper<TopBalance> TOP_BALANCE_ROW_MAPPER = (resultSet, rowNumber) -> new TopBalance(
+            resultSet.getLong("ACCOUNT_ID"),
+            resultSet.getLong("ACCOUNT_VERSION"),
+            resultSet.getBigDecimal("ACCOUNT_BALANCE")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate snapshotTransaction;
+    private final boolean loadAfterReady;
+    private final Object loadMonitor = new Object();
+
+    // Only the highest balances are kept, when too many of them leave the top it is read again from the balance index
+    private final Map<Long, TopBalance> topBalancesById = new HashMap<>();
+    private final NavigableSet<TopBalance> topBalances = new TreeSet<>(HIGHEST_BALANCE_FIRST);
+    private final Map<Long, Long> versionsOutsideTop = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+            return size() > OUTSIDE_TOP_VERSIONS_CAPACITY;
+        }
+    };
+    private long accountCount;
+    private BigDecimal totalBalance = BigDecimal.ZERO;
+    private volatile boolean loaded;
+
+    // Not null while the database is read, changes committed meanwhile are replayed unless the snapshot includes them
+    private List<BalanceChange> pendingChanges;
+
+    public AccountStatistics(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${account.statistics.load-after-ready:false}") boolean loadAfterReady) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.loadAfterReady = loadAfterReady;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        // Refills start from after-commit listeners, where joining the committed transaction is not possible
+        this.snapshotTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransaction.setReadOnly(true);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!loadAfterReady) {
+            rebuild();
+        }
+    }
+
+    // Requests are served before the application is ready, so loading in the background only delays the statistics
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (loadAfterReady) {
+            Thread.ofVirtual().name("account-statistics-load").start(() -> {
+                try {
+                    rebuild();
+                } catch (RuntimeException exception) {
+                    LOGGER.error("Account statistics could not be loaded, waiting for the reconciliation", exception);
+                }
+            });
+        }
+    }
+
+    // Applied after the change commits, its version orders it against other changes to the same account
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBalanceChanged(AccountBalanceChangedEvent event) {
+        final var account = event.account();
+        final var change = new BalanceChange(
+                account.getId(), account.getVersion(), event.previousBalance(), account.getBalance());
+
+        final boolean refillNeeded;
+        synchronized (this) {
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+                return;
+            }
+
+            applyTotals(change);
+            refillNeeded = applyTopBalances(change);
+        }
+
+        if (refillNeeded) {
+            LOGGER.info("Too many accounts left the top balances, reading them again (accountId={})",
+                    change.accountId());
+            load(false);
+        }
+    }
+
+    public synchronized AccountStatisticsSnapshot snapshot(int top) {
+        final var balances = topBalances.stream()
+                .limit(top)
+                .map(topBalance -> new AccountBalance(topBalance.accountId(), topBalance.balance()))
+                .toList();
+
+        return new AccountStatisticsSnapshot(totalBalance, accountCount, balances);
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public void rebuild() {
+        load(true);
+        loaded = true;
+        LOGGER.info("Account statistics rebuilt (snapshot={})", snapshot(0));
+    }
+
+    // Catches changes made outside the API, a change still on its way to the statistics must not look like drift
+    @Scheduled(
+            initialDelayString = "${account.statistics.reconciliation-interval:PT5M}",
+            fixedDelayString = "${account.statistics.reconciliation-interval:PT5M}"
+    )
+    public boolean reconcile() {
+        if (findDrift() == null) {
+            return false;
+        }
+
+        // Confirming the drift, since a change committed right before the snapshot may not have been applied yet
+        final var drift = findDrift();
+        if (drift == null) {
+            return false;
+        }
+
+        LOGGER.warn("Account statistics drifted from database (drift={})", drift);
+        rebuild();
+
+        return true;
+    }
+
+    private Drift findDrift() {
+        return readSnapshot(
+                () -> new DatabaseState(findTotals(),
+                        jdbcTemplate.query(FIND_TOP_BALANCES, TOP_BALANCE_ROW_MAPPER, MAX_TOP_BALANCES)),
+                (database, includedChanges, excludedChanges) -> {
+                    // Memory is compared once it includes the same changes as the snapshot
+                    includedChanges.forEach(this::apply);
+                    final var memory = snapshot(MAX_TOP_BALANCES);
+                    final var topBalancesMatch = sameTopBalances(memory.topBalances(), database.topBalances());
+                    final var drifted = memory.accountCount() != database.totals().accountCount()
+                            || memory.totalBalance().compareTo(database.totals().totalBalance()) != 0
+                            || !topBalancesMatch;
+                    excludedChanges.forEach(this::apply);
+
+                    if (!drifted) {
+                        return null;
+                    }
+
+                    return new Drift(memory.accountCount(), memory.totalBalance(), database.totals(), topBalancesMatch);
+                });
+    }
+
+    private void load(boolean includeTotals) {
+        readSnapshot(
+                () -> new DatabaseState(includeTotals ? findTotals() : null,
+                        jdbcTemplate.query(FIND_TOP_BALANCES, TOP_BALANCE_ROW_MAPPER, TOP_BALANCES_CAPACITY)),
+                (database, includedChanges, excludedChanges) -> {
+                    if (database.totals() != null) {
+                        accountCount = database.totals().accountCount();
+                        totalBalance = database.totals().totalBalance();
+                    } else {
+                        includedChanges.forEach(this::applyTotals);
+                    }
+
+                    // Accounts that do not come back into the top keep their versions
+                    topBalances.forEach(topBalance -> versionsOutsideTop.merge(
+                            topBalance.accountId(), topBalance.version(), Math::max));
+                    topBalances.clear();
+                    topBalancesById.clear();
+                    database.topBalances().forEach(this::addTopBalance);
+
+                    excludedChanges.forEach(this::apply);
+                    return null;
+                });
+    }
+
+    // Reads the database in one snapshot and hands over the changes committed meanwhile, split by whether it has them
+    private <D, R> R readSnapshot(Supplier<D> databaseReader, SnapshotHandler<D, R> handler) {
+        synchronized (loadMonitor) {
+            synchronized (this) {
+                pendingChanges = new ArrayList<>();
+            }
+
+            try {
+                return snapshotTransaction.execute(status -> {
+                    final var database = databaseReader.get();
+
+                    synchronized (this) {
+                        final var changes = pendingChanges;
+                        pendingChanges = null;
+
+                        // Versions come from the same snapshot, telling apart changes it already includes
+                        final var snapshotVersions = findVersions(changes);
+                        final var includedChanges = new ArrayList<BalanceChange>();
+                        final var excludedChanges = new ArrayList<BalanceChange>();
+                        for (var change : changes) {
+                            final var snapshotVersion = snapshotVersions.get(change.accountId());
+                            if (snapshotVersion != null && change.version() <= snapshotVersion) {
+                                includedChanges.add(change);
+                            } else {
+                                excludedChanges.add(change);
+                            }
+                        }
+
+                        return handler.handle(database, includedChanges, excludedChanges);
+                    }
+                });
+            } finally {
+                synchronized (this) {
+                    // Reading failed before the changes were handed over, so they still apply
+                    if (pendingChanges != null) {
+                        pendingChanges.forEach(this::apply);
+                        pendingChanges = null;
+                    }
+                }
+            }
+        }
+    }
+
+    private Totals findTotals() {
+        return jdbcTemplate.queryForObject(FIND_TOTALS, TOTALS_ROW_MAPPER);
+    }
+
+    private Map<Long, Long> findVersions(List<BalanceChange> changes) {
+        final var accountIds = changes.stream()
+                .map(BalanceChange::accountId)
+                .distinct()
+                .toList();
+
+        if (accountIds.isEmpty()) {
+            return Map.of();
+        }
+
+        final var versions = new HashMap<Long, Long>();
+        final var placeholders = String.join(", ", Collections.nCopies(accountIds.size(), "?"));
+        jdbcTemplate.query(FIND_VERSIONS.formatted(placeholders), resultSet -> {
+            versions.put(resultSet.getLong("ACCOUNT_ID"), resultSet.getLong("ACCOUNT_VERSION"));
+        }, accountIds.toArray());
+
+        return versions;
+    }
+
+    private void apply(BalanceChange change) {
+        applyTotals(change);
+        applyTopBalances(change);
+    }
+
+    private void applyTotals(BalanceChange change) {
+        if (change.previousBalance() == null) {
+            accountCount++;
+            totalBalance = totalBalance.add(change.balance());
+        } else {
+            totalBalance = totalBalance.add(change.balance()).subtract(change.previousBalance());
+        }
+    }
+
+    /**
+     * Moves the account inside the top balances, which always hold the highest balances of all accounts: every account
+     * left out has a lower balance than the last one kept.
+     *
+     * @return whether so few balances are left that they have to be read from the database again
+     */
+    private boolean applyTopBalances(BalanceChange change) {
+        final var current = topBalancesById.get(change.accountId());
+        final var lastVersion = current != null ? current.version() : versionsOutsideTop.get(change.accountId());
+        if (lastVersion != null && lastVersion >= change.version()) {
+            // An older change committed earlier but arrived after this account was updated again
+            return false;
+        }
+
+        if (current != null) {
+            topBalances.remove(current);
+            topBalancesById.remove(current.accountId());
+        }
+
+        // When this account is the only one left out, it belongs in the top regardless of its balance
+        final var candidate = new TopBalance(change.accountId(), change.version(), change.balance());
+        final var accountsLeftOut = accountCount - topBalances.size();
+        if (accountsLeftOut <= 1
+                || (!topBalances.isEmpty() && HIGHEST_BALANCE_FIRST.compare(candidate, topBalances.last()) < 0)) {
+            addTopBalance(candidate);
+            if (topBalances.size() > TOP_BALANCES_CAPACITY) {
+                final var evicted = topBalances.pollLast();
+                topBalancesById.remove(evicted.accountId());
+                versionsOutsideTop.put(evicted.accountId(), evicted.version());
+            }
+        } else {
+            versionsOutsideTop.put(candidate.accountId(), candidate.version());
+        }
+
+        return topBalances.size() < MAX_TOP_BALANCES && accountCount > topBalances.size();
+    }
+
+    private void addTopBalance(TopBalance topBalance) {
+        topBalances.add(topBalance);
+        topBalancesById.put(topBalance.accountId(), topBalance);
+        versionsOutsideTop.remove(topBalance.accountId());
+    }
+
+    private static boolean sameTopBalances(List<AccountBalance> memory, List<TopBalance> database) {
+        if (memory.size() != database.size()) {
+            return false;
+        }
+
+        for (var index = 0; index < memory.size(); index++) {
+            final var memoryBalance = memory.get(index);
+            final var databaseBalance = database.get(index);
+            if (!memoryBalance.accountId().equals(databaseBalance.accountId())
+                    || memoryBalance.balance().compareTo(databaseBalance.balance()) != 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @FunctionalInterface
+    private interface SnapshotHandler<D, R> {
+
+        R handle(D database, List<BalanceChange> includedChanges, List<BalanceChange> excludedChanges);
+    }
+
+    private record BalanceChange(Long accountId, long version, BigDecimal previousBalance, BigDecimal balance) {
+    }
+
+    private record TopBalance(Long accountId, long version, BigDecimal balance) {
+    }
+
+    private record Totals(long accountCount, BigDecimal totalBalance) {
+    }
+
+    private record DatabaseState(Totals totals, List<TopBalance> topBalances) {
+    }
+
+    private record Drift(long memoryAccountCount,
+                         BigDecimal memoryTotalBalance,
+                         Totals database,
+                         boolean topBalancesMatch) {
+    }
+}
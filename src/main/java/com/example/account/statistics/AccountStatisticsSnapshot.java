@@ -0,0 +1,7 @@
+package com.example.account.statistics;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public record AccountStatisticsSnapshot(BigDecimal totalBalance, long accountCount, List<AccountBalance> topBalances) {
+}
@@ -0,0 +1,11 @@
+CREATE TABLE ACCOUNT_POSTING_CHECKPOINT
+(
+    POSTING_DATE           DATE,
+    PARTITION_INDEX        INTEGER,
+    PARTITION_LOWER_ID     BIGINT,
+    PARTITION_UPPER_ID     BIGINT,
+    LAST_POSTED_ACCOUNT_ID BIGINT,
+    COMPLETED              BOOLEAN,
+
+    PRIMARY KEY (POSTING_DATE, PARTITION_INDEX)
+);
@@ -0,0 +1,4 @@
+ALTER TABLE ACCOUNT
+    ADD COLUMN ACCOUNT_VERSION BIGINT NOT NULL DEFAULT 0;
+
+CREATE INDEX ACCOUNT_BALANCE_INDEX ON ACCOUNT (ACCOUNT_BALANCE DESC, ACCOUNT_ID);
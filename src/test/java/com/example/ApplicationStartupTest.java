@@ -0,0 +1,174 @@
+package com.example;
+
+import com.example.testing.DatabaseTestConfiguration;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Compares the time to the first request served by child JVMs with and without the fast-startup profile.
+ */
+class ApplicationStartupTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ApplicationStartupTest.class);
+
+    // Not calibrated yet, which is why the startupTest task is kept out of check
+    private static final double MAX_RATIO_TO_BASELINE = 0.8;
+
+    private static final int ATTEMPTS = 3;
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(1);
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @Test
+    void servingFirstRequestFasterThanRegularStartup() throws Exception {
+        // The startupTest task passes the application classpath and where the archive and the logs are written
+        assumeTrue(System.getProperty("startup.classpath") != null, "Run with ./gradlew startupTest");
+
+        // The database runs outside the application in production, so its startup is not measured
+        final var postgreSQLContainer = DatabaseTestConfiguration.startContainer();
+        final var outputDirectory = Files.createDirectories(Path.of(System.getProperty("startup.outputDirectory")));
+        final var archive = outputDirectory.resolve("application.jsa");
+
+        recordArchive(postgreSQLContainer, outputDirectory, archive);
+
+        final var baseline = fastestTimeToFirstRequest(postgreSQLContainer, outputDirectory, "regular",
+                List.of(), List.of());
+        final var fastStartup = fastestTimeToFirstRequest(postgreSQLContainer, outputDirectory, "fast-startup",
+                List.of("-XX:SharedArchiveFile=" + archive),
+                List.of("--spring.profiles.active=fast-startup"));
+
+        final var budget = Duration.ofNanos((long) (baseline.toNanos() * MAX_RATIO_TO_BASELINE));
+        LOGGER.info("Time to first request measured (baseline={}, fastStartup={}, budget={})",
+                baseline, fastStartup, budget);
+
+        assertTrue(fastStartup.compareTo(budget) <= 0,
+                "Fast startup served the first request after " + fastStartup + ", over the budget of " + budget
+                        + " derived from the regular startup of " + baseline);
+    }
+
+    private void recordArchive(PostgreSQLContainer<?> postgreSQLContainer,
+                               Path outputDirectory,
+                               Path archive) throws Exception {
+        Files.deleteIfExists(archive);
+
+        // Beans are created eagerly so the classes the first request needs end up in the archive
+        final var process = start(postgreSQLContainer, outputDirectory.resolve("training.log"), 0,
+                List.of("-XX:ArchiveClassesAtExit=" + archive, "-Dspring.context.exit=onRefresh"),
+                List.of("--spring.profiles.active=fast-startup", "--spring.main.lazy-initialization=false"));
+
+        if (!process.waitFor(STARTUP_TIMEOUT.toSeconds(), TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            fail("Training run did not exit after the application context was refreshed");
+        }
+
+        assertEquals(0, process.exitValue(), "Training run failed, see training.log");
+        assertTrue(Files.exists(archive), "Training run did not write the class data sharing archive");
+    }
+
+    private Duration fastestTimeToFirstRequest(PostgreSQLContainer<?> postgreSQLContainer,
+                                               Path outputDirectory,
+                                               String name,
+                                               List<String> jvmArguments,
+                                               List<String> applicationArguments) throws Exception {
+        var fastest = Duration.ofNanos(Long.MAX_VALUE);
+        for (var attempt = 1; attempt <= ATTEMPTS; attempt++) {
+            final var port = findFreePort();
+            final var log = outputDirectory.resolve(name + "-" + attempt + ".log");
+
+            final var startedAt = System.nanoTime();
+            final var process = start(postgreSQLContainer, log, port, jvmArguments, applicationArguments);
+            try {
+                awaitFirstRequest(process, port);
+                final var timeToFirstRequest = Duration.ofNanos(System.nanoTime() - startedAt);
+                LOGGER.info("First request served (name={}, attempt={}, timeToFirstRequest={})",
+                        name, attempt, timeToFirstRequest);
+
+                if (timeToFirstRequest.compareTo(fastest) < 0) {
+                    fastest = timeToFirstRequest;
+                }
+            } finally {
+                process.destroy();
+                if (!process.waitFor(STARTUP_TIMEOUT.toSeconds(), TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            }
+        }
+
+        return fastest;
+    }
+
+    private Process start(PostgreSQLContainer<?> postgreSQLContainer,
+                          Path log,
+                          int port,
+                          List<String> jvmArguments,
+                          List<String> applicationArguments) throws IOException {
+        final var command = new ArrayList<String>();
+        command.add(ProcessHandle.current().info().command().orElseThrow());
+        command.addAll(jvmArguments);
+        command.add("-cp");
+        command.add(System.getProperty("startup.classpath"));
+        command.add(Application.class.getName());
+        command.add("--server.port=" + port);
+        command.add("--spring.datasource.url=" + postgreSQLContainer.getJdbcUrl());
+        command.add("--spring.datasource.username=" + postgreSQLContainer.getUsername());
+        command.add("--spring.datasource.password=" + postgreSQLContainer.getPassword());
+        command.addAll(applicationArguments);
+
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+    }
+
+    private void awaitFirstRequest(Process process, int port) throws InterruptedException {
+        // Any account lookup goes through the controller, the repository and the database
+        final var uri = URI.create("http://localhost:" + port + "/accounts/" + Long.MAX_VALUE);
+        final var request = HttpRequest.newBuilder(uri)
+                .GET()
+                .build();
+
+        final var deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                fail("Application exited before serving the first request");
+            }
+
+            try {
+                final var response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                assertEquals(404, response.statusCode());
+                return;
+            } catch (IOException exception) {
+                // The web server is not accepting connections yet
+                Thread.sleep(10);
+            }
+        }
+
+        fail("Application did not serve the first request within " + STARTUP_TIMEOUT);
+    }
+
+    private static int findFreePort() throws IOException {
+        try (var serverSocket = new ServerSocket(0)) {
+            return serverSocket.getLocalPort();
+        }
+    }
+}
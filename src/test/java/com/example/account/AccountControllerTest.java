@@ -5,6 +5,7 @@ import com.example.account.api.AccountResponse;
 import com.example.account.api.DepositRequest;
 import com.example.account.api.TransferRequest;
 import com.example.testing.DatabaseTestConfiguration;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
@@ -15,6 +16,8 @@ import org.springframework.test.web.reactive.server.ExchangeResult;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @Import(DatabaseTestConfiguration.class)
@@ -24,10 +27,21 @@ class AccountControllerTest {
     @Autowired
     private WebTestClient webTestClient;
 
+    @Autowired
+    private AccountRepository accountRepository;
+
+    // The database container is shared with other tests and may be reused between runs, so accounts are removed
+    private final List<Long> accountIds = new ArrayList<>();
+
+    @AfterEach
+    void after() {
+        accountRepository.deleteAllById(accountIds);
+    }
+
     @Test
     void findingUnknownAccount() {
         // Defining unknown ID to represent source account
-        final var accountId = 101L;
+        final var accountId = Long.MAX_VALUE - 101;
         assertAccountDoesNotExist(accountId);
 
         // Trying to find it and expecting an error
@@ -41,7 +55,7 @@ class AccountControllerTest {
     @Test
     void depositingToUnknownAccount() {
         // Defining unknown ID to represent source account
-        final var accountId = 203L;
+        final var accountId = Long.MAX_VALUE - 203;
         assertAccountDoesNotExist(accountId);
 
         final var depositRequest = new DepositRequest();
@@ -58,7 +72,7 @@ class AccountControllerTest {
     @Test
     void transferringFromUnknownSourceAccount() {
         // Defining unknown ID to represent source account
-        final var sourceAccountId = 924L;
+        final var sourceAccountId = Long.MAX_VALUE - 924;
         assertAccountDoesNotExist(sourceAccountId);
 
         // Creating target account
@@ -88,7 +102,7 @@ class AccountControllerTest {
         final var sourceAccount = createAccount(sourceAccountRequest);
 
         // Defining unknown ID to represent target account
-        final var targetAccountId = 123L;
+        final var targetAccountId = Long.MAX_VALUE - 123;
         assertAccountDoesNotExist(targetAccountId);
 
         // Defining the transfer
@@ -113,6 +127,7 @@ class AccountControllerTest {
                 .returnResult(Void.class);
 
         final var accountId = getAccountIdFromLocationHeader(exchange);
+        accountIds.add(accountId);
 
         return webTestClient.get()
                 .uri("/accounts/{accountId}", accountId)
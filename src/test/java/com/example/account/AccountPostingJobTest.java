@@ -0,0 +1,201 @@
+package com.example.account;
+
+import com.example.account.posting.AccountPostingJob;
+import com.example.account.statistics.AccountStatistics;
+import com.example.testing.DatabaseTestConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.fail;
+
+@SpringBootTest(properties = {
+        "account.posting.interest-rate=0.01",
+        "account.posting.fee=1.00",
+        "account.posting.partitions=3",
+        "account.posting.threads=2",
+        "account.posting.chunk-size=2"
+})
+@Import(DatabaseTestConfiguration.class)
+class AccountPostingJobTest {
+
+    private static final LocalDate POSTING_DATE = LocalDate.of(2023, 12, 31);
+
+    @Autowired
+    private AccountPostingJob accountPostingJob;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountStatistics accountStatistics;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final List<Account> accounts = new ArrayList<>();
+
+    @AfterEach
+    void after() {
+        accountRepository.deleteAllById(accounts.stream().map(Account::getId).toList());
+        jdbcTemplate.update("DELETE FROM ACCOUNT_POSTING_CHECKPOINT WHERE POSTING_DATE = ?", POSTING_DATE);
+    }
+
+    @Test
+    void postingInterestAndFeeToAllAccounts() {
+        // Creating more accounts than partitions and chunks so every partition commits several chunks
+        for (var letter = 'A'; letter <= 'J'; letter++) {
+            createAccount("Posting" + letter, new BigDecimal("200.00"));
+        }
+
+        accountPostingJob.run(POSTING_DATE);
+
+        // Every account earns 1% of interest and pays the fee
+        accounts.forEach(account -> assertBalance(account, new BigDecimal("201.00")));
+    }
+
+    @Test
+    void updatingStatisticsWithPostedBalances() {
+        createAccount("PostingStatsA", new BigDecimal("200.00"));
+        createAccount("PostingStatsB", new BigDecimal("99990.00"));
+        createAccount("PostingStatsC", new BigDecimal("0.00"));
+        // Accounts are created without the API here, so the statistics start from the database
+        accountStatistics.rebuild();
+
+        accountPostingJob.run(POSTING_DATE);
+
+        // Every chunk committed its balances to the statistics, including the capped and the empty account
+        assertFalse(accountStatistics.reconcile());
+    }
+
+    @Test
+    void runningAgainForSamePostingDate() {
+        final var account = createAccount("PostingTwice", new BigDecimal("200.00"));
+
+        // Restarting a completed posting must not post the same accounts again
+        accountPostingJob.run(POSTING_DATE);
+        accountPostingJob.run(POSTING_DATE);
+
+        assertBalance(account, new BigDecimal("201.00"));
+    }
+
+    @Test
+    void resumingFromLastCommittedChunk() {
+        // The first three accounts were already posted by a run that failed afterwards
+        for (var letter = 'A'; letter <= 'C'; letter++) {
+            createAccount("Resumed" + letter, new BigDecimal("201.00"));
+        }
+        for (var letter = 'D'; letter <= 'F'; letter++) {
+            createAccount("Resumed" + letter, new BigDecimal("200.00"));
+        }
+
+        jdbcTemplate.update("""
+                        INSERT INTO ACCOUNT_POSTING_CHECKPOINT (POSTING_DATE, PARTITION_INDEX, PARTITION_LOWER_ID,
+                                                                PARTITION_UPPER_ID, LAST_POSTED_ACCOUNT_ID, COMPLETED)
+                        VALUES (?, 0, ?, ?, ?, FALSE)
+                        """,
+                POSTING_DATE,
+                accounts.getFirst().getId() - 1,
+                accounts.getLast().getId(),
+                accounts.get(2).getId());
+
+        // Resuming posts the remaining accounts and running again posts nothing
+        accountPostingJob.run(POSTING_DATE);
+        accountPostingJob.run(POSTING_DATE);
+
+        accounts.forEach(account -> assertBalance(account, new BigDecimal("201.00")));
+    }
+
+    @Test
+    void postingWhileDepositIsInProgress() {
+        final var account = createAccount("PostingDeposit", new BigDecimal("200.00"));
+        final var posting = new AtomicReference<CompletableFuture<Void>>();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // Reading the balance the way a deposit does, then starting the posting before the deposit is written
+            final var lockedAccount = accountRepository.findLockedById(account.getId()).orElseThrow();
+            posting.set(CompletableFuture.runAsync(() -> accountPostingJob.run(POSTING_DATE)));
+            awaitPostingWaitingForLock();
+
+            lockedAccount.setBalance(lockedAccount.getBalance().add(new BigDecimal("100.00")));
+        });
+
+        posting.get().join();
+
+        // The posting is applied on top of the deposit instead of being overwritten by it
+        assertBalance(account, new BigDecimal("302.00"));
+    }
+
+    @Test
+    void cappingInterestAtMaximumBalance() {
+        final var account = createAccount("PostingRich", new BigDecimal("99990.00"));
+
+        accountPostingJob.run(POSTING_DATE);
+
+        // Interest stops at the largest balance the column holds and the fee is charged after it
+        assertBalance(account, new BigDecimal("99998.99"));
+    }
+
+    @Test
+    void chargingFeeWithoutEnoughBalance() {
+        final var account = createAccount("PostingEmpty", new BigDecimal("0.00"));
+
+        accountPostingJob.run(POSTING_DATE);
+
+        // The fee is limited to the balance available so it never becomes negative
+        assertBalance(account, new BigDecimal("0.00"));
+    }
+
+    private Account createAccount(String name, BigDecimal balance) {
+        final var account = new Account();
+        account.setName(name);
+        account.setBalance(balance);
+
+        final var accountCreated = accountRepository.save(account);
+        accounts.add(accountCreated);
+
+        return accountCreated;
+    }
+
+    private void awaitPostingWaitingForLock() {
+        final var deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (System.nanoTime() < deadline) {
+            final var waitingLocks = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM pg_locks WHERE NOT granted", Long.class);
+            if (waitingLocks != null && waitingLocks > 0) {
+                return;
+            }
+
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                fail(exception);
+            }
+        }
+
+        fail("Account posting did not wait for the account locked by the deposit");
+    }
+
+    private void assertBalance(Account account, BigDecimal expectedBalance) {
+        final var accountFound = accountRepository.findById(account.getId()).orElseThrow();
+        assertEquals(expectedBalance, accountFound.getBalance());
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.account;
+
+import com.example.account.posting.AccountPostingConfiguration;
+import com.example.account.posting.AccountPostingProperties;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.context.properties.bind.validation.BindValidationException;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AccountPostingPropertiesTest {
+
+    private final ApplicationContextRunner applicationContextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(AccountPostingConfiguration.class);
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "account.posting.interest-rate=-0.01",
+            "account.posting.fee=-1.00",
+            "account.posting.partitions=0",
+            "account.posting.threads=0",
+            "account.posting.chunk-size=0"
+    })
+    void refusingToStartWithInvalidProperty(String property) {
+        // A chunk size of zero would otherwise complete every partition without posting a single account
+        applicationContextRunner.withPropertyValues(property).run(context -> {
+            final var startupFailure = context.getStartupFailure();
+            assertNotNull(startupFailure, "Application started with " + property);
+            assertInstanceOf(BindValidationException.class, rootCause(startupFailure));
+        });
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"account.posting.interest-rate=0", "account.posting.fee=0"})
+    void startingWithoutInterestOrFee(String property) {
+        applicationContextRunner.withPropertyValues(property).run(context -> {
+            assertNull(context.getStartupFailure());
+            assertNotNull(context.getBean(AccountPostingProperties.class));
+        });
+    }
+
+    private static Throwable rootCause(Throwable throwable) {
+        var cause = throwable;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+
+        return cause;
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.account;
+
+import com.example.account.api.AccountRequest;
+import com.example.account.api.AccountStatsResponse;
+import com.example.account.api.DepositRequest;
+import com.example.account.api.TransferRequest;
+import com.example.account.statistics.AccountStatistics;
+import com.example.testing.DatabaseTestConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.reactive.server.ExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Import(DatabaseTestConfiguration.class)
+@AutoConfigureWebTestClient
+class AccountStatisticsTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountStatistics accountStatistics;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> accountIds = new ArrayList<>();
+
+    @BeforeEach
+    void before() {
+        // Other tests share the database and remove their accounts directly, so the statistics start from a clean slate
+        accountStatistics.rebuild();
+    }
+
+    @AfterEach
+    void after() {
+        accountRepository.deleteAllById(accountIds);
+    }
+
+    @Test
+    void updatingStatisticsOnCreateDepositAndTransfer() {
+        final var statsBefore = findStats(1);
+
+        // Creating two accounts, depositing into both and transferring between them
+        final var sourceAccountId = createAccount("StatsSource");
+        final var targetAccountId = createAccount("StatsTarget");
+        deposit(sourceAccountId, new BigDecimal("99000.00"));
+        deposit(targetAccountId, new BigDecimal("1000.00"));
+        transfer(targetAccountId, sourceAccountId, new BigDecimal("500.00"));
+
+        final var statsAfter = findStats(1);
+
+        // Both accounts are counted and the total includes every deposit
+        assertEquals(statsBefore.getAccountCount() + 2, statsAfter.getAccountCount());
+        assertEquals(
+                parseBalance(statsBefore.getTotalBalance()).add(new BigDecimal("100000.00")),
+                parseBalance(statsAfter.getTotalBalance())
+        );
+
+        // The account that received the transfer has the highest balance
+        assertEquals(1, statsAfter.getTopBalances().size());
+        assertEquals(sourceAccountId, statsAfter.getTopBalances().get(0).getId());
+        assertEquals("99,500.00", statsAfter.getTopBalances().get(0).getBalance());
+
+        // Memory and database agree
+        assertFalse(accountStatistics.reconcile());
+    }
+
+    @Test
+    void reconcilingAfterChangesOutsideTheApi() {
+        final var accountId = createAccount("StatsDeleted");
+        final var statsBefore = findStats(10);
+
+        // Deleting the account without going through the API
+        accountRepository.deleteById(accountId);
+
+        // Reconciliation detects the drift and rebuilds the statistics
+        assertTrue(accountStatistics.reconcile());
+        assertEquals(statsBefore.getAccountCount() - 1, findStats(10).getAccountCount());
+    }
+
+    @Test
+    void reconcilingTopBalancesChangedOutsideTheApi() {
+        final var highAccountId = createAccount("StatsHigh");
+        final var lowAccountId = createAccount("StatsLow");
+        deposit(highAccountId, new BigDecimal("90000.00"));
+        deposit(lowAccountId, new BigDecimal("80000.00"));
+        assertFalse(accountStatistics.reconcile());
+
+        // Swapping both balances outside the API keeps the count and the total unchanged
+        jdbcTemplate.update("""
+                UPDATE ACCOUNT
+                SET ACCOUNT_BALANCE = CASE WHEN ACCOUNT_ID = ? THEN 80000.00 ELSE 90000.00 END
+                WHERE ACCOUNT_ID IN (?, ?)
+                """, highAccountId, highAccountId, lowAccountId);
+
+        // Reconciliation detects the drift through the top balances and rebuilds them
+        assertTrue(accountStatistics.reconcile());
+        assertEquals(lowAccountId, findStats(1).getTopBalances().get(0).getId());
+    }
+
+    @Test
+    void ignoringChangeThatArrivesAfterNewerOne() {
+        // Filling the top balances so an account without balance is left out of them
+        accountIds.addAll(jdbcTemplate.queryForList("""
+                INSERT INTO ACCOUNT (ACCOUNT_ID, ACCOUNT_NAME, ACCOUNT_BALANCE)
+                SELECT NEXTVAL('ACCOUNT_ID_SEQUENCE'), 'StatsFiller' || N, 1.00
+                FROM GENERATE_SERIES(1, 200) AS N
+                RETURNING ACCOUNT_ID
+                """, Long.class));
+        final var accountId = createAccount("StatsStale");
+        deposit(accountId, new BigDecimal("90000.00"));
+        accountStatistics.rebuild();
+
+        // Two later changes commit, the second one takes the whole balance away
+        jdbcTemplate.update("UPDATE ACCOUNT SET ACCOUNT_BALANCE = 0.00, ACCOUNT_VERSION = 3 WHERE ACCOUNT_ID = ?",
+                accountId);
+
+        // Their listeners run in reverse commit order
+        accountStatistics.onBalanceChanged(balanceChanged(accountId, 3, "95000.00", "0.00"));
+        accountStatistics.onBalanceChanged(balanceChanged(accountId, 2, "90000.00", "95000.00"));
+
+        // The older change does not bring back the balance the account no longer has
+        assertFalse(accountStatistics.reconcile());
+    }
+
+    private AccountBalanceChangedEvent balanceChanged(Long accountId,
+                                                      long version,
+                                                      String previousBalance,
+                                                      String balance) {
+        final var account = new Account();
+        account.setId(accountId);
+        account.setVersion(version);
+        account.setBalance(new BigDecimal(balance));
+
+        return new AccountBalanceChangedEvent(account, new BigDecimal(previousBalance));
+    }
+
+    private AccountStatsResponse findStats(int top) {
+        final var accountStatsResponse = webTestClient.get()
+                .uri("/accounts/stats?top={top}", top)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.OK)
+                .expectBody(AccountStatsResponse.class)
+                .returnResult().getResponseBody();
+
+        assertNotNull(accountStatsResponse);
+        return accountStatsResponse;
+    }
+
+    private Long createAccount(String name) {
+        final var accountRequest = new AccountRequest();
+        accountRequest.setName(name);
+
+        final var exchangeResult = webTestClient.post()
+                .uri("/accounts")
+                .bodyValue(accountRequest)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CREATED)
+                .returnResult(Void.class);
+
+        final var accountId = getAccountIdFromLocationHeader(exchangeResult);
+        accountIds.add(accountId);
+
+        return accountId;
+    }
+
+    private void deposit(Long accountId, BigDecimal amount) {
+        final var depositRequest = new DepositRequest();
+        depositRequest.setAmount(amount);
+
+        webTestClient.post()
+                .uri("/accounts/{accountId}/deposit", accountId)
+                .bodyValue(depositRequest)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.OK);
+    }
+
+    private void transfer(Long sourceAccountId, Long targetAccountId, BigDecimal amount) {
+        final var transferRequest = new TransferRequest();
+        transferRequest.setTargetAccountId(targetAccountId);
+        transferRequest.setAmount(amount);
+
+        webTestClient.post()
+                .uri("/accounts/{accountId}/transfer", sourceAccountId)
+                .bodyValue(transferRequest)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.OK);
+    }
+
+    private BigDecimal parseBalance(String balance) {
+        return new BigDecimal(balance.replace(",", ""));
+    }
+
+    private Long getAccountIdFromLocationHeader(ExchangeResult exchangeResult) {
+        final var responseHeaders = exchangeResult.getResponseHeaders();
+        final var location = responseHeaders.getLocation();
+        assert location != null;
+
+        final var segments = location.toString().split("/");
+        final var lastSegment = segments[segments.length - 1];
+
+        return Long.parseLong(lastSegment);
+    }
+}
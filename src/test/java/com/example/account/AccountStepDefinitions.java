@@ -9,7 +9,6 @@ import com.example.account.api.TransferResponse;
 import com.example.account.api.TransferResponseError;
 import com.example.testing.DatabaseTestConfiguration;
 import io.cucumber.java.After;
-import io.cucumber.java.Before;
 import io.cucumber.java.en.Given;
 import io.cucumber.java.en.Then;
 import io.cucumber.java.en.When;
@@ -30,6 +29,7 @@ import java.text.DecimalFormat;
 import java.text.ParseException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -40,6 +40,8 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 @CucumberContextConfiguration
 public class AccountStepDefinitions {
 
+    private static final int NAMESPACE_LENGTH = 6;
+
     @Autowired
     private WebTestClient webTestClient;
 
@@ -48,25 +50,22 @@ public class AccountStepDefinitions {
 
     @Autowired
     @Qualifier("balanceFormat")
-    private DecimalFormat balanceFormat;
+    private ThreadLocal<DecimalFormat> balanceFormat;
 
+    // Scenarios run in parallel against the same database, so each one suffixes its account names with a namespace
+    private final String namespace = randomNamespace();
     private final Map<String, AccountResponse> accounts = new HashMap<>();
     private TransferResponseError transferResponseError;
 
-    @Before
-    public void before() {
-        deleteAllAccounts();
-    }
-
     @After
     public void after() {
-        deleteAllAccounts();
+        deleteScenarioAccounts();
     }
 
     @Given("Account {string} exists and has balance {string}")
     public void accountExistsAndHasBalance(String accountName, String expectedInitialBalance) {
         final var accountRequest = new AccountRequest();
-        accountRequest.setName(accountName);
+        accountRequest.setName(accountName + namespace);
 
         final var exchangeResult = webTestClient.post()
                 .uri("/accounts")
@@ -88,7 +87,7 @@ public class AccountStepDefinitions {
     public void theAccountBalanceIs(String accountName, String balance) throws ParseException {
         final var accountId = accounts.get(accountName).getId();
         final var depositRequest = new DepositRequest();
-        depositRequest.setAmount(((BigDecimal) balanceFormat.parse(balance)));
+        depositRequest.setAmount(((BigDecimal) balanceFormat.get().parse(balance)));
 
         final var depositResponse = webTestClient.post()
                 .uri("/accounts/{accountId}/deposit", accountId)
@@ -169,7 +168,17 @@ public class AccountStepDefinitions {
         return Long.parseLong(lastSegment);
     }
 
-    private void deleteAllAccounts() {
+    private static String randomNamespace() {
+        final var random = ThreadLocalRandom.current();
+        final var namespace = new StringBuilder(NAMESPACE_LENGTH);
+        for (var index = 0; index < NAMESPACE_LENGTH; index++) {
+            namespace.append((char) random.nextInt('a', 'z' + 1));
+        }
+
+        return namespace.toString();
+    }
+
+    private void deleteScenarioAccounts() {
         final var accountIds = accounts.values().stream()
                 .map(AccountResponse::getId)
                 .toList();
@@ -10,9 +10,20 @@ import org.testcontainers.utility.DockerImageName;
 @TestConfiguration
 public class DatabaseTestConfiguration {
 
-    @Bean
+    // Every application context of the test run shares this container, and with `testcontainers.reuse.enable=true`
+    // in ~/.testcontainers.properties it also survives between runs
+    private static final PostgreSQLContainer<?> POSTGRESQL_CONTAINER =
+            new PostgreSQLContainer<>(DockerImageName.parse("postgres"))
+                    .withReuse(true);
+
+    public static PostgreSQLContainer<?> startContainer() {
+        POSTGRESQL_CONTAINER.start();
+        return POSTGRESQL_CONTAINER;
+    }
+
+    @Bean(destroyMethod = "")
     @ServiceConnection(type = JdbcConnectionDetails.class)
     PostgreSQLContainer<?> postgreSQLContainer() {
-        return new PostgreSQLContainer<>(DockerImageName.parse("postgres"));
+        return POSTGRESQL_CONTAINER;
     }
 }